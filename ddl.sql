@@ -31,6 +31,9 @@ CREATE TABLE deposit_record (
 -- 唯一索引: (交易哈希 + 日志索引) 保证幂等性
 CREATE UNIQUE INDEX uk_tx_hash_log_index ON deposit_record(tx_hash, log_index);
 
+-- 索引: 对账任务按区块区间查询
+CREATE INDEX idx_block_number ON deposit_record(block_number);
+
 
 
 
@@ -52,3 +55,39 @@ COMMENT ON COLUMN deposit_record.created_at IS '创建时间';
 COMMENT ON COLUMN deposit_record.updated_at IS '更新时间';
 
 
+-- 表: reconcile_checkpoint (链上/数据库对账进度表)
+CREATE TABLE reconcile_checkpoint (
+    name        VARCHAR(64) PRIMARY KEY,
+    last_block  BIGINT      NOT NULL,
+    updated_at  TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE reconcile_checkpoint IS '链上与数据库对账进度';
+COMMENT ON COLUMN reconcile_checkpoint.name IS '对账任务名（合约地址）';
+COMMENT ON COLUMN reconcile_checkpoint.last_block IS '已核对到的区块号（含）';
+COMMENT ON COLUMN reconcile_checkpoint.updated_at IS '更新时间';
+
+
+-- 表: reconcile_gap (只报告模式下发现的不一致区间，开启修复后处理)
+CREATE TABLE reconcile_gap (
+    id              BIGSERIAL   PRIMARY KEY,
+    name            VARCHAR(64) NOT NULL,
+    from_block      BIGINT      NOT NULL,
+    to_block        BIGINT      NOT NULL,
+    missing_count   INTEGER     NOT NULL DEFAULT 0,
+    orphaned_count  INTEGER     NOT NULL DEFAULT 0,
+    created_at      TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at      TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNIQUE INDEX uk_reconcile_gap_range ON reconcile_gap(name, from_block, to_block);
+
+COMMENT ON TABLE reconcile_gap IS '对账发现的待修复区间';
+COMMENT ON COLUMN reconcile_gap.id IS '主键ID';
+COMMENT ON COLUMN reconcile_gap.name IS '对账任务名（合约地址）';
+COMMENT ON COLUMN reconcile_gap.from_block IS '起始区块号（含）';
+COMMENT ON COLUMN reconcile_gap.to_block IS '结束区块号（含）';
+COMMENT ON COLUMN reconcile_gap.missing_count IS '缺失记录数';
+COMMENT ON COLUMN reconcile_gap.orphaned_count IS '孤儿记录数';
+COMMENT ON COLUMN reconcile_gap.created_at IS '创建时间';
+COMMENT ON COLUMN reconcile_gap.updated_at IS '更新时间';
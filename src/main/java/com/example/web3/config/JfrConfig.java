@@ -0,0 +1,46 @@
+package com.example.web3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JFR 录制配置
+ * @author jiangyuxuan
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jfr")
+@Data
+public class JfrConfig {
+
+    /**
+     * 启动时是否自动开启常驻录制
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 各类事件的记录阈值（毫秒），低于阈值的实例不会写入录制
+     */
+    private Long handleThreshold = 2000L;
+
+    private Long rpcThreshold = 500L;
+
+    private Long dbThreshold = 100L;
+
+    /**
+     * 录制保留时长（毫秒）和磁盘上限（字节）
+     */
+    private Long maxAge = 3600000L;
+
+    private Long maxSize = 256L * 1024 * 1024;
+
+    /**
+     * dump 文件输出目录
+     */
+    private String dumpDir = "./jfr";
+
+    /**
+     * dump 目录最多保留的文件数，超出时删除最旧的，防止反复 dump 写满磁盘
+     */
+    private Integer maxDumps = 3;
+}
@@ -0,0 +1,73 @@
+package com.example.web3.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 链上与数据库对账配置
+ * @author jiangyuxuan
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reconcile")
+@Data
+public class ReconcileConfig {
+
+    private Boolean enabled = true;
+
+    /**
+     * 没有检查点时从哪个区块开始核对，不配则从当前安全高度开始（只核对之后的区块）
+     */
+    private Long startBlock;
+
+    /**
+     * 每次 eth_getLogs 覆盖的区块数
+     */
+    private Long rangeSize = 2000L;
+
+    /**
+     * eth_getLogs 结果过多时对半拆分重试，拆到不超过这么多区块仍过多则本轮失败
+     */
+    private Long minRangeSize = 16L;
+
+    /**
+     * 二分到不超过这么多区块时，改为逐条比对并修复
+     */
+    private Long leafBlocks = 8L;
+
+    /**
+     * 只核对 最新区块 - lagBlocks 之前的区块，避开实时监听还在处理的区间
+     */
+    private Long lagBlocks = 64L;
+
+    /**
+     * 每轮最多核对的区间数
+     */
+    private Integer maxRangesPerRun = 5;
+
+    /**
+     * 两次 RPC 调用之间的最小间隔（毫秒），限流用
+     */
+    private Long rpcInterval = 1000L;
+
+    /**
+     * 两轮对账之间的间隔（毫秒）
+     */
+    private Long fixedDelay = 60000L;
+
+    /**
+     * 连续失败时的最大退避间隔（毫秒）
+     */
+    private Long maxBackoff = 1800000L;
+
+    /**
+     * 连续失败达到该次数时健康检查报 DOWN
+     */
+    private Integer failureThreshold = 3;
+
+    /**
+     * 是否自动修复：补录缺失记录、删除链上不存在的记录
+     * 关闭时只报告，不一致的区间记到 reconcile_gap，重新开启后优先修复这些区间
+     */
+    private Boolean repair = true;
+}
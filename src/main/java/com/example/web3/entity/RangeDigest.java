@@ -0,0 +1,22 @@
+package com.example.web3.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 区块区间的记录数和摘要
+ * @author jiangyuxuan
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RangeDigest {
+
+    private Long recordCount;
+
+    // 各记录哈希之和，与顺序无关；数据库 SUM(bigint) 返回 numeric，这里用 BigDecimal 接
+    private BigDecimal digest;
+}
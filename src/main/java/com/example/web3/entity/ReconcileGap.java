@@ -0,0 +1,36 @@
+package com.example.web3.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对账发现的待修复区间
+ * @author jiangyuxuan
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconcileGap {
+
+    private Long id;
+
+    // 对账任务名（合约地址）
+    private String name;
+
+    private Long fromBlock;
+
+    private Long toBlock;
+
+    private Integer missingCount;
+
+    private Integer orphanedCount;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.example.web3.health;
+
+import com.example.web3.config.ReconcileConfig;
+import com.example.web3.service.ReconcileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 对账任务健康检查，连续失败达到阈值时报 DOWN，便于告警
+ * 管理端口只绑定本机，外部监控通过业务端口的 /health/reconcile 探测（只含状态，DOWN 时 HTTP 503），
+ * 详情（lastError 等）在本机 /actuator/health 查看
+ * @author jiangyuxuan
+ */
+@Component
+@RequiredArgsConstructor
+public class ReconcileHealthIndicator implements HealthIndicator {
+
+    private final ReconcileService reconcileService;
+    private final ReconcileConfig reconcileConfig;
+
+    @Override
+    public Health health() {
+        int failures = reconcileService.getConsecutiveFailures();
+        Health.Builder builder = failures >= reconcileConfig.getFailureThreshold()
+                ? Health.down()
+                : Health.up();
+        builder.withDetail("enabled", reconcileConfig.getEnabled())
+                .withDetail("consecutiveFailures", failures)
+                .withDetail("lastSuccessAt", reconcileService.getLastSuccessAt());
+        if (reconcileService.getLastError() != null) {
+            builder.withDetail("lastError", reconcileService.getLastError())
+                    .withDetail("nextAttemptAt", reconcileService.getNextAttemptAt());
+        }
+        return builder.build();
+    }
+}
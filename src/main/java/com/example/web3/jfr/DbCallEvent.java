@@ -0,0 +1,22 @@
+package com.example.web3.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 入库链路上的数据库操作耗时
+ * DEPOSIT_SAVE 与 DB_INSERT 的差值基本就是获取连接和事务提交的开销
+ * @author jiangyuxuan
+ */
+@Name(DbCallEvent.NAME)
+@Label("DB Call")
+@Description("入库链路上的数据库操作")
+public class DbCallEvent extends IngestStageEvent {
+
+    public static final String NAME = "com.example.web3.DbCall";
+
+    public DbCallEvent(IngestStage stage, String txHash, Long blockNumber) {
+        super(stage, txHash, blockNumber);
+    }
+}
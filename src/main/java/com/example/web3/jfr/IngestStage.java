@@ -0,0 +1,33 @@
+package com.example.web3.jfr;
+
+/**
+ * 充值入库链路的各个阶段
+ * @author jiangyuxuan
+ */
+public enum IngestStage {
+
+    /**
+     * 单个 Transfer 事件的完整处理（不含确认等待的睡眠）
+     */
+    HANDLE,
+
+    /**
+     * RPC: 查询最新区块高度，检查确认数
+     */
+    CONFIRM_CHECK,
+
+    /**
+     * RPC: 查询事件所在区块（取时间戳）
+     */
+    BLOCK_FETCH,
+
+    /**
+     * DB: 调用 DepositService 保存，包含事务开启/提交和连接池获取连接
+     */
+    DEPOSIT_SAVE,
+
+    /**
+     * DB: 单条 INSERT 语句本身
+     */
+    DB_INSERT
+}
@@ -0,0 +1,33 @@
+package com.example.web3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * 充值入库链路的 JFR 事件基类
+ * 字段不能是 private，否则子类事件里不会带上这些字段
+ * 构造时即 begin()，在 finally 里 commit()
+ * 阈值统一由 JfrRecorder 按 JfrConfig（jfr.*-threshold）设置，事件类上不写 @Threshold；
+ * 用 jcmd JFR.start 等方式录制时需自行在 .jfc 里配置阈值，否则会记录全部实例
+ * @author jiangyuxuan
+ */
+@Category({"ERC20 Deposit", "Ingestion"})
+public abstract class IngestStageEvent extends Event {
+
+    @Label("Transaction Hash")
+    String txHash;
+
+    @Label("Block Number")
+    long blockNumber;
+
+    @Label("Stage")
+    String stage;
+
+    protected IngestStageEvent(IngestStage stage, String txHash, Long blockNumber) {
+        this.stage = stage.name();
+        this.txHash = txHash;
+        this.blockNumber = blockNumber != null ? blockNumber : -1L;
+        begin();
+    }
+}
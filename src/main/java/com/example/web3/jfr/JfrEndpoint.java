@@ -0,0 +1,61 @@
+package com.example.web3.jfr;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * JFR 录制控制端点
+ * GET  /actuator/jfr        查看录制状态
+ * POST /actuator/jfr/start  开启录制
+ * POST /actuator/jfr/dump   导出当前录制，可直接用 JMC 打开
+ * POST /actuator/jfr/stop   停止录制
+ * 管理端点只绑定在 127.0.0.1:8081（见 management.server），业务端口上不可访问
+ * @author jiangyuxuan
+ */
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class JfrEndpoint {
+
+    private final JfrRecorder jfrRecorder;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return jfrRecorder.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> operate(@Selector String action) throws IOException {
+        switch (action) {
+            case "start":
+                try {
+                    jfrRecorder.start();
+                } catch (IllegalStateException e) {
+                    Map<String, Object> failed = jfrRecorder.status();
+                    failed.put("error", e.getMessage());
+                    return failed;
+                }
+                return jfrRecorder.status();
+            case "dump":
+                if (!jfrRecorder.isRunning()) {
+                    throw new InvalidEndpointRequestException("当前没有运行中的 JFR 录制", "Recording not running");
+                }
+                Map<String, Object> status = jfrRecorder.status();
+                status.put("file", jfrRecorder.dump().toString());
+                return status;
+            case "stop":
+                jfrRecorder.stop();
+                return jfrRecorder.status();
+            default:
+                throw new InvalidEndpointRequestException("未知操作: " + action, "Unknown action");
+        }
+    }
+}
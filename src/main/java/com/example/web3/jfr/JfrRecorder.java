@@ -0,0 +1,156 @@
+package com.example.web3.jfr;
+
+import com.example.web3.config.JfrConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 常驻 JFR 录制管理
+ * 基于 JDK 自带的 default 配置（GC、锁、线程等，开销约 1%），再叠加本项目的入库事件
+ * @author jiangyuxuan
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JfrRecorder {
+
+    private static final String RECORDING_NAME = "deposit-ingest";
+
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final JfrConfig jfrConfig;
+
+    private Recording recording;
+
+    /**
+     * JFR 只是诊断功能，开启失败（JVM 不支持、配置加载失败等）不影响服务启动
+     */
+    @PostConstruct
+    public void init() {
+        if (Boolean.TRUE.equals(jfrConfig.getEnabled())) {
+            try {
+                start();
+            } catch (RuntimeException e) {
+                log.warn("JFR 录制开启失败，录制保持关闭，可稍后通过 /actuator/jfr/start 重试: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 开启录制，已在录制中则直接返回
+     * @throws IllegalStateException JFR 不可用或配置加载失败
+     */
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+        try {
+            Recording newRecording = new Recording(Configuration.getConfiguration("default"));
+            newRecording.setName(RECORDING_NAME);
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(Duration.ofMillis(jfrConfig.getMaxAge()));
+            newRecording.setMaxSize(jfrConfig.getMaxSize());
+            newRecording.enable(TransferHandleEvent.NAME)
+                    .withThreshold(Duration.ofMillis(jfrConfig.getHandleThreshold()));
+            newRecording.enable(RpcCallEvent.NAME)
+                    .withThreshold(Duration.ofMillis(jfrConfig.getRpcThreshold()));
+            newRecording.enable(DbCallEvent.NAME)
+                    .withThreshold(Duration.ofMillis(jfrConfig.getDbThreshold()));
+            newRecording.start();
+            recording = newRecording;
+            log.info("JFR 录制已开启，阈值 handle={}ms, rpc={}ms, db={}ms",
+                    jfrConfig.getHandleThreshold(), jfrConfig.getRpcThreshold(), jfrConfig.getDbThreshold());
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("加载 JFR default 配置失败", e);
+        }
+    }
+
+    /**
+     * 把当前录制内容写到 dumpDir 下，录制继续进行
+     * @return dump 文件路径
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("当前没有 JFR 录制");
+        }
+        Path dir = Paths.get(jfrConfig.getDumpDir());
+        Files.createDirectories(dir);
+        Path file = dir.resolve(RECORDING_NAME + "-" + LocalDateTime.now().format(FILE_TIME_FORMAT) + ".jfr")
+                .toAbsolutePath();
+        recording.dump(file);
+        log.info("JFR 录制已导出: {}", file);
+        cleanupDumps(dir);
+        return file;
+    }
+
+    /**
+     * 只保留最新的 maxDumps 个 dump 文件，文件名带时间戳，按文件名倒序即新到旧
+     */
+    private void cleanupDumps(Path dir) throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(dir)) {
+            dumps = files
+                    .filter(f -> {
+                        String name = f.getFileName().toString();
+                        return name.startsWith(RECORDING_NAME + "-") && name.endsWith(".jfr");
+                    })
+                    .sorted((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        int maxDumps = Math.max(jfrConfig.getMaxDumps(), 1);
+        for (Path old : dumps.subList(Math.min(maxDumps, dumps.size()), dumps.size())) {
+            Files.deleteIfExists(old);
+            log.info("删除旧的 JFR dump: {}", old);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            log.info("JFR 录制已停止");
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", isRunning());
+        if (recording != null) {
+            status.put("name", recording.getName());
+            status.put("state", recording.getState().name());
+            status.put("startTime", String.valueOf(recording.getStartTime()));
+            status.put("size", recording.getSize());
+        }
+        status.put("handleThreshold", jfrConfig.getHandleThreshold());
+        status.put("rpcThreshold", jfrConfig.getRpcThreshold());
+        status.put("dbThreshold", jfrConfig.getDbThreshold());
+        status.put("dumpDir", jfrConfig.getDumpDir());
+        status.put("maxDumps", jfrConfig.getMaxDumps());
+        return status;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.web3.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 入库链路上的 RPC 调用耗时
+ * @author jiangyuxuan
+ */
+@Name(RpcCallEvent.NAME)
+@Label("RPC Call")
+@Description("入库链路上对节点的 RPC 调用")
+public class RpcCallEvent extends IngestStageEvent {
+
+    public static final String NAME = "com.example.web3.RpcCall";
+
+    public RpcCallEvent(IngestStage stage, String txHash, Long blockNumber) {
+        super(stage, txHash, blockNumber);
+    }
+}
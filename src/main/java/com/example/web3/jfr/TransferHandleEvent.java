@@ -0,0 +1,21 @@
+package com.example.web3.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 单个 Transfer 事件的整体处理耗时
+ * @author jiangyuxuan
+ */
+@Name(TransferHandleEvent.NAME)
+@Label("Transfer Handle")
+@Description("单个 Transfer 事件从确认检查到入库的整体耗时")
+public class TransferHandleEvent extends IngestStageEvent {
+
+    public static final String NAME = "com.example.web3.TransferHandle";
+
+    public TransferHandleEvent(String txHash, Long blockNumber) {
+        super(IngestStage.HANDLE, txHash, blockNumber);
+    }
+}
@@ -2,28 +2,24 @@ package com.example.web3.listener;
 
 import com.example.web3.config.Web3jConfig;
 import com.example.web3.entity.DepositRecord;
+import com.example.web3.jfr.DbCallEvent;
+import com.example.web3.jfr.IngestStage;
+import com.example.web3.jfr.RpcCallEvent;
+import com.example.web3.jfr.TransferHandleEvent;
 import com.example.web3.service.DepositService;
+import com.example.web3.service.TransferLogParser;
 import io.reactivex.disposables.Disposable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
-import org.web3j.abi.EventEncoder;
-import org.web3j.abi.TypeReference;
-import org.web3j.abi.datatypes.Address;
-import org.web3j.abi.datatypes.Event;
-import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.EthFilter;
-import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.Log;
 
 import javax.annotation.PreDestroy;
-import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * Transfer事件监听
@@ -37,6 +33,7 @@ public class TokenTransferListener implements CommandLineRunner {
     private final Web3j web3j;
     private final Web3jConfig web3jConfig;
     private final DepositService depositService;
+    private final TransferLogParser transferLogParser;
 
     private Disposable subscription;
     
@@ -45,22 +42,6 @@ public class TokenTransferListener implements CommandLineRunner {
     private static final long INITIAL_RETRY_DELAY_MS = 5000; // 5秒
     private int retryCount = 0;
 
-    private static final Event TRANSFER_EVENT = new Event("Transfer",
-            Arrays.asList(
-                    new TypeReference<Address>(true) {},
-                    new TypeReference<Address>(true) {},
-                    new TypeReference<Uint256>(false) {}
-            ));
-
-    private static final String TRANSFER_EVENT_SIGNATURE = EventEncoder.encode(TRANSFER_EVENT);
-    
-    // ERC20 标准函数选择器（Function Selector）
-    // 计算方式: keccak256("decimals()").substring(0, 10)
-    private static final String DECIMALS_FUNCTION_SELECTOR = "0x313ce567";
-
-    // 代币的小数位数，从合约动态获取
-    private int tokenDecimals = 18; // 默认值
-
     @Override
     public void run(String... args) {
         log.info("启动监听器...");
@@ -70,7 +51,7 @@ public class TokenTransferListener implements CommandLineRunner {
             return;
         }
         // 获取代币的 decimals
-        fetchTokenDecimals();
+        transferLogParser.loadTokenDecimals();
         startListening();
     }
     
@@ -94,58 +75,6 @@ public class TokenTransferListener implements CommandLineRunner {
         }
     }
     
-    /**
-     * 从合约获取 decimals
-     */
-    private void fetchTokenDecimals() {
-        try {
-            String contractAddress = web3jConfig.getToken().getContractAddress();
-            //import org.web3j.crypto.Hash;
-            //import org.web3j.utils.Numeric;
-            //
-            //public class FunctionSelectorDemo {
-            //    public static void main(String[] args) {
-            //        // 1. 函数签名
-            //        String signature = "decimals()";
-            //
-            //        // 2. 计算 Keccak256 哈希
-            //        byte[] hash = Hash.sha3(signature.getBytes());
-            //
-            //        // 3. 取前 4 字节
-            //        byte[] selector = new byte[4];
-            //        System.arraycopy(hash, 0, selector, 0, 4);
-            //
-            //        // 4. 转换为十六进制字符串
-            //        String functionSelector = Numeric.toHexString(selector);
-            //
-            //        System.out.println(functionSelector);
-            //        // 输出: 0x313ce567
-            //    }
-            //}
-            // ERC20 decimals() 方法签名: 0x313ce567
-            org.web3j.protocol.core.methods.request.Transaction transaction = 
-                org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction(
-                    null,
-                    contractAddress,
-                    "0x313ce567"  // decimals() 的方法签名
-                );
-            
-            String result = web3j.ethCall(transaction, DefaultBlockParameterName.LATEST)
-                    .send()
-                    .getValue();
-            
-            // 解析返回值（uint8）
-            if (result != null && !result.equals("0x")) {
-                tokenDecimals = new BigInteger(result.substring(2), 16).intValue();
-                log.info("从合约获取 decimals 成功: {} (合约: {})", tokenDecimals, contractAddress);
-            } else {
-                log.warn("无法从合约获取 decimals，使用默认值: {}", tokenDecimals);
-            }
-        } catch (Exception e) {
-            log.error("获取 decimals 失败，使用默认值 {}: {}", tokenDecimals, e.getMessage());
-        }
-    }
-
     public void startListening() {
         try {
             String contractAddress = web3jConfig.getToken().getContractAddress();
@@ -162,7 +91,7 @@ public class TokenTransferListener implements CommandLineRunner {
                     DefaultBlockParameterName.LATEST,
                     contractAddress
             );
-            filter.addSingleTopic(TRANSFER_EVENT_SIGNATURE);
+            filter.addSingleTopic(TransferLogParser.TRANSFER_EVENT_SIGNATURE);
 
             subscription = web3j.ethLogFlowable(filter).subscribe(
                     this::handleTransferEvent,
@@ -190,6 +119,9 @@ public class TokenTransferListener implements CommandLineRunner {
      */
     private void handleTransferEvent(Log eventLog) {
         try {
+            String txHash = eventLog.getTransactionHash();
+            Long blockNumber = eventLog.getBlockNumber().longValue();
+
             //为什么会有链重组？以太坊使用验证者来产生区块，可能因为网络延迟会产生分叉？
             // 先睡眠等待区块确认
             Integer requiredConfirmations = web3jConfig.getToken().getConfirmations();
@@ -203,60 +135,61 @@ public class TokenTransferListener implements CommandLineRunner {
                 Thread.sleep(sleepMs);
             }
             
-            // 睡醒后再检查一次确认数
-            if (!isConfirmed(eventLog)) {
-                log.warn("交易 {} 等待后确认数仍不足，跳过处理", eventLog.getTransactionHash());
-                return;
-            }
-            
-            List<String> topics = eventLog.getTopics();
-            //日志包含至少 3 个 topics,事件签名 + from + to
-            if (topics.size() < 3) {
-                log.error("topics数量不对: {}", topics.size());
-                return;
+            // 睡醒后开始计时，确认等待的睡眠是预期内的，不计入
+            TransferHandleEvent handleEvent = new TransferHandleEvent(txHash, blockNumber);
+            try {
+                processTransferEvent(eventLog);
+            } finally {
+                handleEvent.commit();
             }
 
-            String fromAddress = decodeAddress(topics.get(1));
-            String toAddress = decodeAddress(topics.get(2));
-            
-            String data = eventLog.getData();
-            BigInteger value = new BigInteger(data.substring(2), 16);
-            //实际金额 = 原始值 / 10^decimals
-            BigDecimal amountDecimal = new BigDecimal(value)
-                    .divide(BigDecimal.TEN.pow(tokenDecimals));
+        } catch (Exception e) {
+            log.error("处理事件失败: {}", e.getMessage(), e);
+        }
+    }
 
-            EthBlock.Block block = web3j.ethGetBlockByNumber(
-                    org.web3j.protocol.core.DefaultBlockParameter.valueOf(
-                            BigInteger.valueOf(eventLog.getBlockNumber().longValue())
-                    ),
-                    false
-            ).send().getBlock();
+    /**
+     * 确认等待之后的处理：确认检查 -> 解析（topics 不合法直接丢弃）-> 查区块 -> 入库，RPC 和 DB 步骤记录 JFR 事件
+     */
+    private void processTransferEvent(Log eventLog) throws Exception {
+        String txHash = eventLog.getTransactionHash();
+        Long blockNumber = eventLog.getBlockNumber().longValue();
 
-            Long timestamp = block != null ? block.getTimestamp().longValue() : System.currentTimeMillis() / 1000;
+        // 睡醒后再检查一次确认数
+        RpcCallEvent confirmEvent = new RpcCallEvent(IngestStage.CONFIRM_CHECK, txHash, blockNumber);
+        boolean confirmed;
+        try {
+            confirmed = isConfirmed(eventLog);
+        } finally {
+            confirmEvent.commit();
+        }
+        if (!confirmed) {
+            log.warn("交易 {} 等待后确认数仍不足，跳过处理", txHash);
+            return;
+        }
 
-            DepositRecord record = DepositRecord.builder()
-                    .txHash(eventLog.getTransactionHash())
-                    .blockNumber(eventLog.getBlockNumber().longValue())
-                    .blockHash(eventLog.getBlockHash())
-                    .contractAddress(eventLog.getAddress())
-                    .fromAddress(fromAddress)
-                    .toAddress(toAddress)
-                    .amount(value.toString())
-                    .amountDecimal(amountDecimal)
-                    .decimals(tokenDecimals)
-                    .logIndex(eventLog.getLogIndex().intValue())
-                    .transactionIndex(eventLog.getTransactionIndex().intValue())
-                    .timestamp(timestamp)
-                    .build();
+        DepositRecord record = transferLogParser.buildDepositRecord(eventLog);
+        if (record == null) {
+            return;
+        }
 
-            log.info("Transfer事件 - tx: {}, from: {}, to: {}, amount: {}",
-                    record.getTxHash(), record.getFromAddress(), 
-                    record.getToAddress(), record.getAmountDecimal());
+        RpcCallEvent blockEvent = new RpcCallEvent(IngestStage.BLOCK_FETCH, txHash, blockNumber);
+        try {
+            record.setTimestamp(transferLogParser.fetchBlockTimestamp(blockNumber));
+        } finally {
+            blockEvent.commit();
+        }
 
-            depositService.saveDepositRecord(record);
+        log.info("Transfer事件 - tx: {}, from: {}, to: {}, amount: {}",
+                record.getTxHash(), record.getFromAddress(), 
+                record.getToAddress(), record.getAmountDecimal());
 
-        } catch (Exception e) {
-            log.error("处理事件失败: {}", e.getMessage(), e);
+        // 包含事务开启/提交和连接池获取连接的耗时
+        DbCallEvent saveEvent = new DbCallEvent(IngestStage.DEPOSIT_SAVE, txHash, blockNumber);
+        try {
+            depositService.saveDepositRecord(record);
+        } finally {
+            saveEvent.commit();
         }
     }
 
@@ -307,14 +240,6 @@ public class TokenTransferListener implements CommandLineRunner {
         }
     }
     
-    // topic格式: 0x000000000000000000000000{address}
-    private String decodeAddress(String topic) {
-        if (topic.length() < 66) {
-            return topic;
-        }
-        return "0x" + topic.substring(26);
-    }
-
     /**
      * 错误处理和重连机制
      */
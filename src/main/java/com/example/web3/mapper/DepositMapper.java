@@ -1,6 +1,7 @@
 package com.example.web3.mapper;
 
 import com.example.web3.entity.DepositRecord;
+import com.example.web3.entity.RangeDigest;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -22,5 +23,17 @@ public interface DepositMapper {
 
     List<DepositRecord> findAll(@Param("offset") Integer offset,
                                  @Param("limit") Integer limit);
-}
 
+    /**
+     * 区块区间内的记录数和摘要（与顺序无关），供对账任务比对
+     */
+    RangeDigest digestByBlockRange(@Param("contractAddress") String contractAddress,
+                                   @Param("fromBlock") Long fromBlock,
+                                   @Param("toBlock") Long toBlock);
+
+    List<DepositRecord> findByBlockRange(@Param("contractAddress") String contractAddress,
+                                         @Param("fromBlock") Long fromBlock,
+                                         @Param("toBlock") Long toBlock);
+
+    int deleteById(@Param("id") Long id);
+}
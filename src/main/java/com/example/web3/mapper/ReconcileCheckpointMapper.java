@@ -0,0 +1,15 @@
+package com.example.web3.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * @author jiangyuxuan
+ */
+@Mapper
+public interface ReconcileCheckpointMapper {
+
+    Long findLastBlock(@Param("name") String name);
+
+    int upsert(@Param("name") String name, @Param("lastBlock") Long lastBlock);
+}
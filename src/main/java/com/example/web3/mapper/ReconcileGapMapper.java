@@ -0,0 +1,21 @@
+package com.example.web3.mapper;
+
+import com.example.web3.entity.ReconcileGap;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 只报告模式下发现的不一致区间，开启修复后再处理
+ * @author jiangyuxuan
+ */
+@Mapper
+public interface ReconcileGapMapper {
+
+    int upsert(ReconcileGap gap);
+
+    List<ReconcileGap> findByName(@Param("name") String name, @Param("limit") Integer limit);
+
+    int deleteById(@Param("id") Long id);
+}
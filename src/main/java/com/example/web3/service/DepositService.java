@@ -1,6 +1,8 @@
 package com.example.web3.service;
 
 import com.example.web3.entity.DepositRecord;
+import com.example.web3.jfr.DbCallEvent;
+import com.example.web3.jfr.IngestStage;
 import com.example.web3.mapper.DepositMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,11 +24,34 @@ public class DepositService {
 
     /**
      * 保存充值记录（利用数据库唯一索引保证幂等性）
+     * 实时监听调用，INSERT 记录 DB_INSERT JFR 事件
      */
     @Transactional(rollbackFor = Exception.class)
     public void saveDepositRecord(DepositRecord record) {
+        save(record, true);
+    }
+
+    /**
+     * 对账补录缺失记录，不记录 JFR 事件，避免后台补录被误认为实时入库卡顿
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void saveRepairedRecord(DepositRecord record) {
+        save(record, false);
+    }
+
+    private void save(DepositRecord record, boolean live) {
         try {
-            int rows = depositMapper.insert(record);
+            int rows;
+            if (live) {
+                DbCallEvent insertEvent = new DbCallEvent(IngestStage.DB_INSERT, record.getTxHash(), record.getBlockNumber());
+                try {
+                    rows = depositMapper.insert(record);
+                } finally {
+                    insertEvent.commit();
+                }
+            } else {
+                rows = depositMapper.insert(record);
+            }
             if (rows > 0) {
                 log.info("保存成功 - txHash: {}, logIndex: {}, from: {}, to: {}, amount: {}",
                         record.getTxHash(), 
@@ -46,6 +71,22 @@ public class DepositService {
         }
     }
 
+    /**
+     * 删除链上已不存在的充值记录（对账发现的孤儿记录）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteDepositRecord(DepositRecord record) {
+        int rows = depositMapper.deleteById(record.getId());
+        if (rows > 0) {
+            log.warn("删除孤儿记录 - id: {}, txHash: {}, logIndex: {}, block: {}, amount: {}",
+                    record.getId(),
+                    record.getTxHash(),
+                    record.getLogIndex(),
+                    record.getBlockNumber(),
+                    record.getAmount());
+        }
+    }
+
     /**
      * 根据地址查询充值记录
      */
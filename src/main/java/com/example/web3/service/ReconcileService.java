@@ -0,0 +1,381 @@
+package com.example.web3.service;
+
+import com.example.web3.config.ReconcileConfig;
+import com.example.web3.config.Web3jConfig;
+import com.example.web3.entity.DepositRecord;
+import com.example.web3.entity.RangeDigest;
+import com.example.web3.entity.ReconcileGap;
+import com.example.web3.mapper.DepositMapper;
+import com.example.web3.mapper.ReconcileCheckpointMapper;
+import com.example.web3.mapper.ReconcileGapMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 链上与数据库对账
+ * 按区块区间比对 eth_getLogs 和 deposit_record 的记录数与摘要，
+ * 不一致时二分定位到小区间，再逐条比对补录缺失记录、删除孤儿记录
+ * @author jiangyuxuan
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReconcileService {
+
+    private final Web3j web3j;
+    private final Web3jConfig web3jConfig;
+    private final ReconcileConfig reconcileConfig;
+    private final DepositMapper depositMapper;
+    private final ReconcileCheckpointMapper checkpointMapper;
+    private final ReconcileGapMapper reconcileGapMapper;
+    private final DepositService depositService;
+    private final TransferLogParser transferLogParser;
+
+    /**
+     * 连续失败次数、最近一次错误，供 ReconcileHealthIndicator 上报
+     */
+    @Getter
+    private volatile int consecutiveFailures = 0;
+    @Getter
+    private volatile String lastError;
+    @Getter
+    private volatile long lastSuccessAt;
+    @Getter
+    private volatile long nextAttemptAt;
+
+    @Scheduled(initialDelayString = "${reconcile.fixed-delay:60000}",
+            fixedDelayString = "${reconcile.fixed-delay:60000}")
+    public void reconcile() {
+        if (!Boolean.TRUE.equals(reconcileConfig.getEnabled())) {
+            return;
+        }
+        // 失败退避期内跳过本轮
+        if (System.currentTimeMillis() < nextAttemptAt) {
+            return;
+        }
+        String contractAddress = web3jConfig.getToken().getContractAddress();
+        String checkpointName = checkpointName(contractAddress);
+        try {
+            long latestBlock = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+            long safeBlock = latestBlock - reconcileConfig.getLagBlocks();
+
+            Long lastBlock = checkpointMapper.findLastBlock(checkpointName);
+            if (lastBlock == null) {
+                Long startBlock = reconcileConfig.getStartBlock();
+                lastBlock = startBlock != null ? startBlock - 1 : safeBlock;
+                checkpointMapper.upsert(checkpointName, lastBlock);
+                log.info("对账检查点初始化: {}，从区块 {} 开始核对", checkpointName, lastBlock + 1);
+            }
+
+            // 开启修复后，先处理只报告模式下记录的待修复区间
+            if (Boolean.TRUE.equals(reconcileConfig.getRepair())) {
+                repairGaps(contractAddress, checkpointName);
+            }
+
+            for (int i = 0; i < reconcileConfig.getMaxRangesPerRun() && lastBlock < safeBlock; i++) {
+                long fromBlock = lastBlock + 1;
+                long toBlock = Math.min(fromBlock + reconcileConfig.getRangeSize() - 1, safeBlock);
+                verifyRange(contractAddress, checkpointName, fromBlock, toBlock);
+                lastBlock = toBlock;
+            }
+            onSuccess();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("对账线程被中断");
+        } catch (Exception e) {
+            onFailure(e);
+        }
+    }
+
+    private void onSuccess() {
+        if (consecutiveFailures > 0) {
+            log.info("对账恢复正常，此前连续失败 {} 次", consecutiveFailures);
+        }
+        consecutiveFailures = 0;
+        lastError = null;
+        nextAttemptAt = 0;
+        lastSuccessAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 失败后按 fixedDelay * 2^(n-1) 退避，上限 maxBackoff
+     */
+    private void onFailure(Exception e) {
+        consecutiveFailures++;
+        lastError = e.getMessage();
+        int exponent = Math.min(consecutiveFailures - 1, 20);
+        long backoff = Math.min(reconcileConfig.getFixedDelay() << exponent, reconcileConfig.getMaxBackoff());
+        nextAttemptAt = System.currentTimeMillis() + backoff;
+        log.error("对账失败（连续第 {} 次），{} 毫秒后从检查点重试: {}",
+                consecutiveFailures, backoff, e.getMessage(), e);
+    }
+
+    /**
+     * 核对一个区间：链上日志只拉一次，二分时在内存里切分，数据库侧每个子区间只查一次聚合
+     * 节点明确返回结果过多时把区间对半拆开重试，直到 minRangeSize；
+     * 超时、连接失败、限流等其它错误直接让本轮失败，交给 onFailure 退避，不拆分
+     * 每核对完一段就推进检查点，拆分后已完成的部分不会重做
+     */
+    private void verifyRange(String contractAddress, String checkpointName, long fromBlock, long toBlock)
+            throws Exception {
+        List<Log> chainLogs;
+        try {
+            chainLogs = fetchLogs(contractAddress, fromBlock, toBlock);
+        } catch (LogsTooLargeException e) {
+            if (toBlock - fromBlock + 1 <= reconcileConfig.getMinRangeSize()) {
+                throw e;
+            }
+            long midBlock = fromBlock + (toBlock - fromBlock) / 2;
+            log.warn("eth_getLogs [{}, {}] 结果过多，拆分为 [{}, {}] 和 [{}, {}] 重试: {}",
+                    fromBlock, toBlock, fromBlock, midBlock, midBlock + 1, toBlock, e.getMessage());
+            verifyRange(contractAddress, checkpointName, fromBlock, midBlock);
+            verifyRange(contractAddress, checkpointName, midBlock + 1, toBlock);
+            return;
+        }
+
+        RangeStats stats = new RangeStats();
+        bisect(contractAddress, chainLogs, fromBlock, toBlock, stats);
+        checkpointMapper.upsert(checkpointName, toBlock);
+
+        if (stats.missing > 0 || stats.orphaned > 0) {
+            log.warn("对账区间 [{}, {}] 不一致 - 链上: {}, 缺失: {}, 孤儿: {}, 比对子区间: {}, 修复: {}",
+                    fromBlock, toBlock, chainLogs.size(), stats.missing, stats.orphaned,
+                    stats.comparedRanges, reconcileConfig.getRepair());
+        } else {
+            log.info("对账区间 [{}, {}] 一致 - 记录数: {}", fromBlock, toBlock, chainLogs.size());
+        }
+    }
+
+    /**
+     * 修复只报告模式下记录的不一致区间，修复完删除记录
+     * 不推进也不回退检查点
+     */
+    private void repairGaps(String contractAddress, String checkpointName) throws Exception {
+        for (ReconcileGap gap : reconcileGapMapper.findByName(checkpointName, reconcileConfig.getMaxRangesPerRun())) {
+            List<Log> chainLogs = fetchLogs(contractAddress, gap.getFromBlock(), gap.getToBlock());
+            RangeStats stats = new RangeStats();
+            bisect(contractAddress, chainLogs, gap.getFromBlock(), gap.getToBlock(), stats);
+            reconcileGapMapper.deleteById(gap.getId());
+            log.info("待修复区间 [{}, {}] 已处理 - 缺失: {}, 孤儿: {}",
+                    gap.getFromBlock(), gap.getToBlock(), stats.missing, stats.orphaned);
+        }
+    }
+
+    private void bisect(String contractAddress, List<Log> chainLogs, long fromBlock, long toBlock,
+                        RangeStats stats) throws Exception {
+        stats.comparedRanges++;
+        RangeDigest dbDigest = depositMapper.digestByBlockRange(contractAddress, fromBlock, toBlock);
+        BigInteger chainDigest = BigInteger.ZERO;
+        for (Log chainLog : chainLogs) {
+            chainDigest = chainDigest.add(BigInteger.valueOf(hashKey(logKey(chainLog))));
+        }
+        if (dbDigest.getRecordCount() == chainLogs.size()
+                && dbDigest.getDigest().toBigInteger().equals(chainDigest)) {
+            return;
+        }
+
+        if (toBlock - fromBlock + 1 <= reconcileConfig.getLeafBlocks()) {
+            repairRange(contractAddress, chainLogs, fromBlock, toBlock, stats);
+            return;
+        }
+
+        long midBlock = fromBlock + (toBlock - fromBlock) / 2;
+        List<Log> left = new ArrayList<>();
+        List<Log> right = new ArrayList<>();
+        for (Log chainLog : chainLogs) {
+            if (chainLog.getBlockNumber().longValue() <= midBlock) {
+                left.add(chainLog);
+            } else {
+                right.add(chainLog);
+            }
+        }
+        bisect(contractAddress, left, fromBlock, midBlock, stats);
+        bisect(contractAddress, right, midBlock + 1, toBlock, stats);
+    }
+
+    /**
+     * 小区间逐条比对：先删孤儿记录（金额不一致的也算），再补录缺失记录
+     * 只报告模式下把不一致的区间记到 reconcile_gap，开启修复后再处理，检查点照常推进
+     */
+    private void repairRange(String contractAddress, List<Log> chainLogs, long fromBlock, long toBlock,
+                             RangeStats stats) throws Exception {
+        Map<String, Log> chainByKey = new LinkedHashMap<>();
+        for (Log chainLog : chainLogs) {
+            chainByKey.put(logKey(chainLog), chainLog);
+        }
+        Map<String, DepositRecord> dbByKey = new LinkedHashMap<>();
+        for (DepositRecord record : depositMapper.findByBlockRange(contractAddress, fromBlock, toBlock)) {
+            dbByKey.put(recordKey(record), record);
+        }
+        int missingBefore = stats.missing;
+        int orphanedBefore = stats.orphaned;
+        // 同一区块的多条缺失记录只查一次区块时间戳
+        Map<Long, Long> blockTimestamps = new HashMap<>();
+
+        for (Map.Entry<String, DepositRecord> entry : dbByKey.entrySet()) {
+            if (chainByKey.containsKey(entry.getKey())) {
+                continue;
+            }
+            stats.orphaned++;
+            DepositRecord record = entry.getValue();
+            log.warn("发现孤儿记录 - tx: {}, logIndex: {}, block: {}",
+                    record.getTxHash(), record.getLogIndex(), record.getBlockNumber());
+            if (Boolean.TRUE.equals(reconcileConfig.getRepair())) {
+                depositService.deleteDepositRecord(record);
+            }
+        }
+
+        for (Map.Entry<String, Log> entry : chainByKey.entrySet()) {
+            if (dbByKey.containsKey(entry.getKey())) {
+                continue;
+            }
+            stats.missing++;
+            Log chainLog = entry.getValue();
+            log.warn("发现缺失记录 - tx: {}, logIndex: {}, block: {}",
+                    chainLog.getTransactionHash(), chainLog.getLogIndex(), chainLog.getBlockNumber());
+            if (Boolean.TRUE.equals(reconcileConfig.getRepair())) {
+                DepositRecord record = transferLogParser.buildDepositRecord(chainLog);
+                if (record != null) {
+                    // 不经过实时链路的 JFR 事件，避免后台补录被误认为实时入库卡顿
+                    Long timestamp = blockTimestamps.get(record.getBlockNumber());
+                    if (timestamp == null) {
+                        timestamp = transferLogParser.fetchBlockTimestamp(record.getBlockNumber());
+                        blockTimestamps.put(record.getBlockNumber(), timestamp);
+                        throttle();
+                    }
+                    record.setTimestamp(timestamp);
+                    depositService.saveRepairedRecord(record);
+                }
+            }
+        }
+
+        int missing = stats.missing - missingBefore;
+        int orphaned = stats.orphaned - orphanedBefore;
+        if (!Boolean.TRUE.equals(reconcileConfig.getRepair()) && (missing > 0 || orphaned > 0)) {
+            reconcileGapMapper.upsert(ReconcileGap.builder()
+                    .name(checkpointName(contractAddress))
+                    .fromBlock(fromBlock)
+                    .toBlock(toBlock)
+                    .missingCount(missing)
+                    .orphanedCount(orphaned)
+                    .build());
+        }
+    }
+
+    private List<Log> fetchLogs(String contractAddress, long fromBlock, long toBlock)
+            throws IOException, InterruptedException {
+        EthFilter filter = new EthFilter(
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(fromBlock)),
+                DefaultBlockParameter.valueOf(BigInteger.valueOf(toBlock)),
+                contractAddress
+        );
+        filter.addSingleTopic(TransferLogParser.TRANSFER_EVENT_SIGNATURE);
+
+        EthLog ethLog = web3j.ethGetLogs(filter).send();
+        throttle();
+        if (ethLog.hasError()) {
+            String message = "eth_getLogs 失败: [" + fromBlock + ", " + toBlock + "] "
+                    + ethLog.getError().getCode() + " " + ethLog.getError().getMessage();
+            if (isResultTooLarge(ethLog.getError())) {
+                throw new LogsTooLargeException(message);
+            }
+            throw new IllegalStateException(message);
+        }
+
+        List<Log> logs = new ArrayList<>();
+        for (EthLog.LogResult<?> result : ethLog.getLogs()) {
+            Log chainLog = (Log) result.get();
+            // 已被重组移除的日志、topics 不完整的日志，实时监听也不会入库
+            if (chainLog.isRemoved() || chainLog.getTopics().size() < 3) {
+                continue;
+            }
+            logs.add(chainLog);
+        }
+        return logs;
+    }
+
+    /**
+     * 节点是否因为结果过多/区间过大拒绝了 eth_getLogs
+     * 只看错误信息：Infura 的 -32005 同时用于限流（Limit exceeded），不能只按错误码判断
+     */
+    private static boolean isResultTooLarge(Response.Error error) {
+        String message = error.getMessage() == null ? "" : error.getMessage().toLowerCase();
+        // Infura: query returned more than 10000 results
+        // Alchemy: Log response size exceeded
+        // 其它节点: exceed maximum block range / too many results
+        return message.contains("query returned more than")
+                || message.contains("response size exceeded")
+                || message.contains("block range")
+                || message.contains("too many results");
+    }
+
+    private void throttle() throws InterruptedException {
+        Long rpcInterval = reconcileConfig.getRpcInterval();
+        if (rpcInterval != null && rpcInterval > 0) {
+            Thread.sleep(rpcInterval);
+        }
+    }
+
+    // 检查点和待修复区间按合约区分，换合约后重新开始
+    private static String checkpointName(String contractAddress) {
+        return contractAddress.toLowerCase();
+    }
+
+    // 与 DepositMapper.digestByBlockRange 中的 tx_hash:log_index:amount 保持一致
+    private static String logKey(Log chainLog) {
+        String amount = new BigInteger(chainLog.getData().substring(2), 16).toString();
+        return chainLog.getTransactionHash().toLowerCase() + ":" + chainLog.getLogIndex() + ":" + amount;
+    }
+
+    private static String recordKey(DepositRecord record) {
+        return record.getTxHash().toLowerCase() + ":" + record.getLogIndex() + ":" + record.getAmount();
+    }
+
+    /**
+     * MD5 前 8 字节按有符号 long 解析，对应 SQL 里的 ('x' || substr(md5(...), 1, 16))::bit(64)::bigint
+     */
+    private static long hashKey(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 不可用", e);
+        }
+    }
+
+    /**
+     * eth_getLogs 结果过多，可以拆小区间重试
+     */
+    private static class LogsTooLargeException extends IllegalStateException {
+        LogsTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    private static class RangeStats {
+        private int comparedRanges;
+        private int missing;
+        private int orphaned;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.web3.service;
+
+import com.example.web3.config.Web3jConfig;
+import com.example.web3.entity.DepositRecord;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transfer 日志解析，实时监听和对账补录共用，保证两边写入的内容一致
+ * @author jiangyuxuan
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferLogParser {
+
+    private final Web3j web3j;
+    private final Web3jConfig web3jConfig;
+
+    private static final Event TRANSFER_EVENT = new Event("Transfer",
+            Arrays.asList(
+                    new TypeReference<Address>(true) {},
+                    new TypeReference<Address>(true) {},
+                    new TypeReference<Uint256>(false) {}
+            ));
+
+    public static final String TRANSFER_EVENT_SIGNATURE = EventEncoder.encode(TRANSFER_EVENT);
+
+    // ERC20 标准函数选择器（Function Selector）
+    // 计算方式: keccak256("decimals()").substring(0, 10)
+    private static final String DECIMALS_FUNCTION_SELECTOR = "0x313ce567";
+
+    // 合约没有实现 decimals() 时使用的默认值
+    private static final int DEFAULT_DECIMALS = 18;
+
+    // 代币的小数位数，从合约动态获取；null 表示还没取到（RPC 失败），下次解析时重试
+    private volatile Integer tokenDecimals;
+
+    /**
+     * 从合约获取 decimals
+     * @return true = 已确定 decimals；false = RPC 失败，仍未确定
+     */
+    public synchronized boolean loadTokenDecimals() {
+        if (tokenDecimals != null) {
+            return true;
+        }
+        try {
+            String contractAddress = web3jConfig.getToken().getContractAddress();
+            //import org.web3j.crypto.Hash;
+            //import org.web3j.utils.Numeric;
+            //
+            //public class FunctionSelectorDemo {
+            //    public static void main(String[] args) {
+            //        // 1. 函数签名
+            //        String signature = "decimals()";
+            //
+            //        // 2. 计算 Keccak256 哈希
+            //        byte[] hash = Hash.sha3(signature.getBytes());
+            //
+            //        // 3. 取前 4 字节
+            //        byte[] selector = new byte[4];
+            //        System.arraycopy(hash, 0, selector, 0, 4);
+            //
+            //        // 4. 转换为十六进制字符串
+            //        String functionSelector = Numeric.toHexString(selector);
+            //
+            //        System.out.println(functionSelector);
+            //        // 输出: 0x313ce567
+            //    }
+            //}
+            // ERC20 decimals() 方法签名: 0x313ce567
+            org.web3j.protocol.core.methods.request.Transaction transaction =
+                org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction(
+                    null,
+                    contractAddress,
+                    DECIMALS_FUNCTION_SELECTOR
+                );
+
+            String result = web3j.ethCall(transaction, DefaultBlockParameterName.LATEST)
+                    .send()
+                    .getValue();
+
+            // 解析返回值（uint8）
+            if (result != null && !result.equals("0x")) {
+                tokenDecimals = new BigInteger(result.substring(2), 16).intValue();
+                log.info("从合约获取 decimals 成功: {} (合约: {})", tokenDecimals, contractAddress);
+            } else {
+                tokenDecimals = DEFAULT_DECIMALS;
+                log.warn("合约未返回 decimals，使用默认值: {}", tokenDecimals);
+            }
+            return true;
+        } catch (Exception e) {
+            // RPC 失败时不落默认值，避免用错误的精度入库
+            log.error("获取 decimals 失败，解析时重试: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 查询区块时间戳，查不到时用当前时间
+     * 不记录 JFR 事件，由调用方决定是否计入实时入库链路
+     */
+    public Long fetchBlockTimestamp(Long blockNumber) throws Exception {
+        EthBlock.Block block = web3j.ethGetBlockByNumber(
+                org.web3j.protocol.core.DefaultBlockParameter.valueOf(
+                        BigInteger.valueOf(blockNumber)
+                ),
+                false
+        ).send().getBlock();
+
+        return block != null ? block.getTimestamp().longValue() : System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * 把 Transfer 日志解析成充值记录，不含时间戳，由调用方查区块后填入
+     * @param eventLog 事件日志
+     * @return 充值记录；topics 不合法时返回 null
+     * @throws IllegalStateException decimals 仍未取到
+     */
+    public DepositRecord buildDepositRecord(Log eventLog) {
+        String txHash = eventLog.getTransactionHash();
+        Long blockNumber = eventLog.getBlockNumber().longValue();
+
+        List<String> topics = eventLog.getTopics();
+        //日志包含至少 3 个 topics,事件签名 + from + to
+        if (topics.size() < 3) {
+            log.error("topics数量不对: {}", topics.size());
+            return null;
+        }
+
+        if (!loadTokenDecimals()) {
+            throw new IllegalStateException("decimals 未知，暂不解析: tx=" + txHash);
+        }
+        int decimals = tokenDecimals;
+
+        String fromAddress = decodeAddress(topics.get(1));
+        String toAddress = decodeAddress(topics.get(2));
+
+        String data = eventLog.getData();
+        BigInteger value = new BigInteger(data.substring(2), 16);
+        //实际金额 = 原始值 / 10^decimals
+        BigDecimal amountDecimal = new BigDecimal(value)
+                .divide(BigDecimal.TEN.pow(decimals));
+
+        return DepositRecord.builder()
+                .txHash(txHash)
+                .blockNumber(blockNumber)
+                .blockHash(eventLog.getBlockHash())
+                .contractAddress(eventLog.getAddress())
+                .fromAddress(fromAddress)
+                .toAddress(toAddress)
+                .amount(value.toString())
+                .amountDecimal(amountDecimal)
+                .decimals(decimals)
+                .logIndex(eventLog.getLogIndex().intValue())
+                .transactionIndex(eventLog.getTransactionIndex().intValue())
+                .build();
+    }
+
+    // topic格式: 0x000000000000000000000000{address}
+    private String decodeAddress(String topic) {
+        if (topic.length() < 66) {
+            return topic;
+        }
+        return "0x" + topic.substring(26);
+    }
+}